@@ -1,6 +1,7 @@
 package io.github.vgaj.plainlanguageencoder;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -13,7 +14,8 @@ public class App {
         Instant start = Instant.now();
         boolean isEncode = (args.length > 0 && args[0].startsWith("e"));
         boolean isDecode = (args.length > 0 && args[0].startsWith("d"));
-        if (args.length == 3 && (isEncode || isDecode)) {
+        boolean isAppend = (args.length > 0 && args[0].startsWith("a"));
+        if (args.length == 3 && (isEncode || isDecode || isAppend)) {
             if (isEncode) {
                 try (InputStream is = new BufferedInputStream( new FileInputStream( args[1]));
                      OutputStream os = new LanguageEncodedOutputStream( new BufferedOutputStream( new FileOutputStream( args[2])))) {
@@ -32,10 +34,20 @@ public class App {
                     }
                     System.out.println(String.format("Decoding completed in %d seconds", Duration.between(start,Instant.now()).getSeconds()));
                 }
+            } else if (isAppend) {
+                try (InputStream is = new BufferedInputStream( new FileInputStream( args[1]));
+                     OutputStream os = LanguageEncodedOutputStream.append( Paths.get( args[2]))) {
+                    int inputData;
+                    while ((inputData = is.read()) != -1) {
+                        os.write(inputData);
+                    }
+                    System.out.println(String.format("Appending completed in %d seconds", Duration.between(start,Instant.now()).getSeconds()));
+                }
             }
 
         } else {
             System.out.println("Usage: java -jar xxx.jar encrypt <original_file> <encrypted_file>" + System.lineSeparator() +
-                               "       java -jar xxx.jar decrypt <encrypted_file> <decrypt_file>");
+                               "       java -jar xxx.jar decrypt <encrypted_file> <decrypt_file>" + System.lineSeparator() +
+                               "       java -jar xxx.jar append <original_file> <encrypted_file>");
         }
     }}
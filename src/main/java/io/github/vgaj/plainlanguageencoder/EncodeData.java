@@ -55,8 +55,20 @@ public class EncodeData {
         return decodeMap;
     }
 
+    /**
+     * Length of the longest word used in the encoding
+     * @return
+     */
+    public int getMaxWordLength() {
+        if (encodeMap == null) {
+            initialiseMaps();
+        }
+        return maxWordLength;
+    }
+
     private Map<Byte, String> encodeMap;
     private Map<String, Byte> decodeMap;
+    private int maxWordLength;
 
     private void initialiseMaps() {
         int indexIntoEncodeData = 0;
@@ -82,6 +94,8 @@ public class EncodeData {
         encodeMap.forEach((a, s) -> tempDecodeMap.put(s, a));
         decodeMap = Collections.unmodifiableMap(tempDecodeMap);
 
+        maxWordLength = encodeMap.values().stream().mapToInt(String::length).max().orElse(0);
+
     }
 
     // Raw dataset of words that will be used in the encoding.
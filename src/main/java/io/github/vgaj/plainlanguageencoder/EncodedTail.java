@@ -0,0 +1,183 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.vgaj.plainlanguageencoder;
+
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * This class recovers the state of {@link LanguageEncodedOutputStream} from the end of an encoded file
+ * so that encoding can be resumed.  Only the tail of the file is read.
+ * The last group of 4 words is decoded and, if it was padded, removed so that its bytes can be encoded
+ * again along with the data that follows.  Otherwise the full stop added on close is removed.
+ */
+class EncodedTail {
+
+    /**
+     * The most that will be read from the end of the file.  This is many times the length of a paragraph.
+     */
+    private static final int MAX_TAIL_LENGTH = 4096;
+
+    /**
+     * The length of the file to keep, anything after this is removed before encoding resumes
+     */
+    private final long keepLength;
+
+    /**
+     * Number of words in the last paragraph, up to keepLength
+     */
+    private final int wordsInParagraph;
+
+    /**
+     * The bytes of a padded last group that need to be encoded again
+     */
+    private final byte[] pendingBytes;
+
+    private EncodedTail(long keepLength, int wordsInParagraph, byte[] pendingBytes) {
+        this.keepLength = keepLength;
+        this.wordsInParagraph = wordsInParagraph;
+        this.pendingBytes = pendingBytes;
+    }
+
+    long getKeepLength() {
+        return keepLength;
+    }
+
+    int getWordsInParagraph() {
+        return wordsInParagraph;
+    }
+
+    byte[] getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Reads the tail of an encoded file
+     * @param channel the encoded file
+     * @param encodeData the words used in the encoding
+     * @return the state at the end of the file
+     * @throws IOException if the tail can't be read or is not in the format written by {@link LanguageEncodedOutputStream}
+     */
+    static EncodedTail read(FileChannel channel, EncodeData encodeData) throws IOException {
+        long size = channel.size();
+        long start = Math.max(0, size - MAX_TAIL_LENGTH);
+        ByteBuffer tail = ByteBuffer.allocate((int) (size - start));
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, start + tail.position()) == -1) {
+                throw new IOException("Encoded file was truncated while being read");
+            }
+        }
+        byte[] tailBytes = tail.array();
+
+        // Find each word and whether a paragraph starts before it.
+        // The last entry in startsParagraph is for a paragraph break after the last word.
+        List<Integer> wordStarts = new ArrayList<>();
+        List<Integer> wordEnds = new ArrayList<>();
+        List<Byte> base64Bytes = new ArrayList<>();
+        List<Boolean> startsParagraph = new ArrayList<>();
+        WordTokenizer tokenizer = new WordTokenizer(encodeData, InvalidWordPolicy.IGNORE);
+        int index = 0;
+        if (start > 0) {
+            // Skip what might be part of a word
+            while (index < tailBytes.length && WordTokenizer.isALetter(tailBytes[index])) {
+                index++;
+            }
+        }
+        int newlinesSinceLastWord = (start == 0) ? 2 : 0;
+        for (; index <= tailBytes.length; index++) {
+            int nextChar = (index < tailBytes.length) ? tailBytes[index] : -1;
+            int base64Byte = tokenizer.next(nextChar);
+            if (base64Byte != WordTokenizer.NO_WORD) {
+                wordStarts.add(index - tokenizer.getLastWordLength());
+                wordEnds.add(index);
+                base64Bytes.add((byte) base64Byte);
+                startsParagraph.add(newlinesSinceLastWord >= 2);
+                newlinesSinceLastWord = 0;
+            }
+            if (nextChar == '\n') {
+                newlinesSinceLastWord++;
+            }
+        }
+        startsParagraph.add(newlinesSinceLastWord >= 2);
+
+        int wordCount = wordStarts.size();
+        if (wordCount == 0) {
+            if (size > 0) {
+                throw new IOException("Unable to find any encoded words in the last " + MAX_TAIL_LENGTH + " bytes");
+            }
+            return new EncodedTail(0, 0, new byte[0]);
+        }
+        if (wordCount < 4) {
+            throw new IOException("Encoded file does not end with a complete group of words");
+        }
+
+        byte[] lastGroup = new byte[4];
+        for (int i = 0; i < lastGroup.length; i++) {
+            lastGroup[i] = base64Bytes.get(wordCount - 4 + i);
+        }
+        byte[] lastGroupBytes;
+        try {
+            lastGroupBytes = Base64.getDecoder().decode(lastGroup);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Encoded file does not end with a complete group of words", e);
+        }
+
+        // Words up to this index are kept
+        boolean isPadded = lastGroupBytes.length < 3;
+        int keptWordCount = isPadded ? (wordCount - 4) : wordCount;
+        int paragraphStart = -1;
+        for (int i = keptWordCount; i >= 0; i--) {
+            if (startsParagraph.get(i)) {
+                paragraphStart = i;
+                break;
+            }
+        }
+        if (paragraphStart == -1) {
+            throw new IOException("Unable to find the start of the last paragraph in the last " + MAX_TAIL_LENGTH + " bytes");
+        }
+        int wordsInParagraph = keptWordCount - paragraphStart;
+
+        int keepIndex;
+        if (isPadded) {
+            // Remove the last group along with the space before it
+            keepIndex = wordStarts.get(wordCount - 4);
+            if (keepIndex > 0 && tailBytes[keepIndex - 1] == ' ') {
+                keepIndex--;
+            }
+            return new EncodedTail(start + keepIndex, wordsInParagraph, lastGroupBytes);
+        } else if ((wordsInParagraph % 10) != 0) {
+            // Remove the full stop added on close
+            keepIndex = wordEnds.get(wordCount - 1);
+            return new EncodedTail(start + keepIndex, wordsInParagraph, new byte[0]);
+        } else {
+            return new EncodedTail(size, wordsInParagraph, new byte[0]);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.vgaj.plainlanguageencoder;
+
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * This class is used to encode and decode whole files without blocking the calling thread.
+ * Files are read and written with {@link AsynchronousFileChannel} while the encoding or decoding
+ * is done on the supplied Executor, so reading, encoding and writing overlap.
+ * The encoded files are the same as those written by {@link LanguageEncodedOutputStream}.
+ * If encoding or decoding fails the partly written output file is deleted.
+ * Unless an ExecutorService is given for the channels, the completion of reads and writes is handled
+ * by the JVM's default thread pool for asynchronous channels, which is shared and not bounded.
+ * Example usage:
+ * <pre>
+ *     LanguageEncodedFiles files = new LanguageEncodedFiles(executor);
+ *     files.encodeFile(Paths.get(origFilename), Paths.get(encFilename))
+ *          .thenCompose(v -&gt; files.decodeFile(Paths.get(encFilename), Paths.get(decodedFilename)))
+ *          .join();
+ * </pre>
+ */
+public class LanguageEncodedFiles {
+
+    /**
+     * The size of each buffer that is read
+     */
+    static final int BUFFER_SIZE = 65536;
+
+    /**
+     * The most buffers that are being read, encoded or written at once for each file
+     */
+    static final int MAX_BUFFERS_IN_FLIGHT = 4;
+
+    /**
+     * The Executor that encoding and decoding is done on
+     */
+    private final Executor executor;
+
+    /**
+     * The ExecutorService the file channels handle completed reads and writes on, or null for the default
+     */
+    private final ExecutorService channelExecutor;
+
+    /**
+     * What to do with words that are not used in the encoding when decoding
+     */
+    private final InvalidWordPolicy invalidWordPolicy;
+
+    /**
+     * Constructs a new LanguageEncodedFiles which ignores words that are not used in the encoding when decoding.
+     * For example usage see {@link LanguageEncodedFiles}
+     * @param executor the Executor that encoding and decoding is done on
+     */
+    public LanguageEncodedFiles(Executor executor) {
+        this(executor, InvalidWordPolicy.IGNORE);
+    }
+
+    /**
+     * Constructs a new LanguageEncodedFiles.
+     * For example usage see {@link LanguageEncodedFiles}
+     * @param executor the Executor that encoding and decoding is done on
+     * @param invalidWordPolicy what to do with words that are not used in the encoding when decoding
+     */
+    public LanguageEncodedFiles(Executor executor, InvalidWordPolicy invalidWordPolicy) {
+        this(executor, null, invalidWordPolicy);
+    }
+
+    /**
+     * Constructs a new LanguageEncodedFiles with its own threads for the file channels.
+     * For example usage see {@link LanguageEncodedFiles}
+     * @param executor the Executor that encoding and decoding is done on
+     * @param channelExecutor the ExecutorService the file channels handle completed reads and writes on,
+     *                        or null to use the JVM's default thread pool for asynchronous channels.
+     *                        It is not shut down by this class.
+     * @param invalidWordPolicy what to do with words that are not used in the encoding when decoding
+     */
+    public LanguageEncodedFiles(Executor executor, ExecutorService channelExecutor, InvalidWordPolicy invalidWordPolicy) {
+        this.executor = executor;
+        this.channelExecutor = channelExecutor;
+        this.invalidWordPolicy = invalidWordPolicy;
+    }
+
+    /**
+     * Encodes a file
+     * @param sourceFile the file to encode
+     * @param encodedFile the file the encoded data is written to, it is replaced if it exists
+     * @return CompletableFuture that completes once the encoded file has been written.
+     * If it completes exceptionally both files have been closed and the partly written encoded file has been deleted.
+     */
+    public CompletableFuture<Void> encodeFile(Path sourceFile, Path encodedFile) {
+        return new FileJob(sourceFile, encodedFile, new Encoder()).start();
+    }
+
+    /**
+     * Decodes a file
+     * @param encodedFile the file to decode
+     * @param decodedFile the file the decoded data is written to, it is replaced if it exists
+     * @return CompletableFuture that completes once the decoded file has been written.
+     * If it completes exceptionally both files have been closed and the partly written decoded file has been deleted.
+     */
+    public CompletableFuture<Void> decodeFile(Path encodedFile, Path decodedFile) {
+        return new FileJob(encodedFile, decodedFile, new Decoder(invalidWordPolicy)).start();
+    }
+
+    /**
+     * Converts the data read from one file into the data written to another
+     */
+    private interface Codec {
+        /**
+         * Converts the next buffer that was read
+         * @return the data to write
+         */
+        byte[] process(ByteBuffer buffer) throws IOException;
+
+        /**
+         * Called once all the data has been read
+         * @return any remaining data to write
+         */
+        byte[] finish() throws IOException;
+    }
+
+    /**
+     * A conversion of data that can throw an IOException
+     */
+    private interface Conversion {
+        byte[] convert() throws IOException;
+    }
+
+    /**
+     * Encodes using a {@link LanguageEncodedOutputStream} so that the result is the same
+     */
+    private static class Encoder implements Codec {
+        private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        private final LanguageEncodedOutputStream os = new LanguageEncodedOutputStream(encoded);
+
+        @Override
+        public byte[] process(ByteBuffer buffer) throws IOException {
+            // Not flushed, as that would complete the current group of words
+            os.write(buffer.array(), buffer.position(), buffer.remaining());
+            return takeEncoded();
+        }
+
+        @Override
+        public byte[] finish() throws IOException {
+            os.close();
+            return takeEncoded();
+        }
+
+        private byte[] takeEncoded() {
+            byte[] result = encoded.toByteArray();
+            encoded.reset();
+            return result;
+        }
+    }
+
+    /**
+     * Decodes in the same way as {@link LanguageEncodedInputStream} but from buffers as they are read
+     */
+    private static class Decoder implements Codec {
+        private final WordTokenizer tokenizer;
+        private final byte[] base64EncodedBytes = new byte[4];
+        private int encodedBytesIndex = 0;
+        private final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+
+        Decoder(InvalidWordPolicy invalidWordPolicy) {
+            tokenizer = new WordTokenizer(new EncodeData(), invalidWordPolicy);
+        }
+
+        @Override
+        public byte[] process(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                addWord(tokenizer.next(buffer.get()));
+            }
+            return takeDecoded();
+        }
+
+        @Override
+        public byte[] finish() throws IOException {
+            addWord(tokenizer.next(-1));
+            // End of file so decode what we have
+            if (encodedBytesIndex > 0) {
+                decoded.write(tokenizer.decodeGroup(base64EncodedBytes, encodedBytesIndex));
+            }
+            return takeDecoded();
+        }
+
+        /**
+         * Helper to decode each group of 4 words as it is completed, as {@link LanguageEncodedInputStream} does
+         */
+        private void addWord(int base64Byte) throws IOException {
+            if (base64Byte != WordTokenizer.NO_WORD) {
+                base64EncodedBytes[encodedBytesIndex++] = (byte) base64Byte;
+                if (encodedBytesIndex == base64EncodedBytes.length) {
+                    decoded.write(tokenizer.decodeGroup(base64EncodedBytes, encodedBytesIndex));
+                    encodedBytesIndex = 0;
+                }
+            }
+        }
+
+        private byte[] takeDecoded() {
+            byte[] result = decoded.toByteArray();
+            decoded.reset();
+            return result;
+        }
+    }
+
+    /**
+     * Reads one file, converts it with a Codec and writes the result to another file.
+     * Only one read is outstanding at a time and buffers are converted in order, one at a time.
+     * Each buffer is counted as in flight from when it is read until it has been written.
+     */
+    private class FileJob {
+        private final Path inputFile;
+        private final Path outputFile;
+        private final Codec codec;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private AsynchronousFileChannel input;
+        private AsynchronousFileChannel output;
+
+        // The following are guarded by this
+        private long readPosition = 0;
+        private long writePosition = 0;
+        private int buffersInFlight = 0;
+        private boolean reading = false;
+        private boolean converting = false;
+        private boolean endOfInput = false;
+        private boolean finished = false;
+        private final Queue<ByteBuffer> buffersToConvert = new ArrayDeque<>();
+
+        FileJob(Path inputFile, Path outputFile, Codec codec) {
+            this.inputFile = inputFile;
+            this.outputFile = outputFile;
+            this.codec = codec;
+        }
+
+        CompletableFuture<Void> start() {
+            try {
+                input = AsynchronousFileChannel.open(inputFile,
+                        EnumSet.of(StandardOpenOption.READ), channelExecutor);
+                output = AsynchronousFileChannel.open(outputFile,
+                        EnumSet.of(StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING),
+                        channelExecutor);
+                pump();
+            } catch (Throwable e) {
+                fail(e);
+            }
+            return result;
+        }
+
+        /**
+         * Starts whatever work can be started, and completes the result once everything has been written
+         */
+        private synchronized void pump() {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                if (!reading && !endOfInput && buffersInFlight < MAX_BUFFERS_IN_FLIGHT) {
+                    reading = true;
+                    buffersInFlight++;
+                    ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    input.read(buffer, readPosition, buffer, readHandler);
+                }
+                if (!converting && !buffersToConvert.isEmpty()) {
+                    converting = true;
+                    ByteBuffer buffer = buffersToConvert.remove();
+                    executeConversion(() -> codec.process(buffer));
+                } else if (!converting && endOfInput && !finished) {
+                    converting = true;
+                    finished = true;
+                    buffersInFlight++;
+                    executeConversion(codec::finish);
+                } else if (!converting && finished && buffersInFlight == 0) {
+                    closeChannels();
+                    result.complete(null);
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        private final CompletionHandler<Integer, ByteBuffer> readHandler = new CompletionHandler<Integer, ByteBuffer>() {
+            @Override
+            public void completed(Integer bytesRead, ByteBuffer buffer) {
+                try {
+                    synchronized (FileJob.this) {
+                        reading = false;
+                        if (bytesRead == -1) {
+                            endOfInput = true;
+                            buffersInFlight--;
+                        } else {
+                            readPosition += bytesRead;
+                            buffer.flip();
+                            buffersToConvert.add(buffer);
+                        }
+                        pump();
+                    }
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, ByteBuffer buffer) {
+                fail(e);
+            }
+        };
+
+        /**
+         * Converts on the Executor and then starts writing the result
+         */
+        private void executeConversion(Conversion conversion) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        byte[] converted = conversion.convert();
+                        synchronized (FileJob.this) {
+                            if (result.isDone()) {
+                                return;
+                            }
+                            converting = false;
+                            if (converted.length == 0) {
+                                buffersInFlight--;
+                            } else {
+                                write(ByteBuffer.wrap(converted), writePosition);
+                                writePosition += converted.length;
+                            }
+                            pump();
+                        }
+                    } catch (Throwable e) {
+                        // Anything thrown here would otherwise be lost and leave the result incomplete
+                        fail(e);
+                    }
+                });
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Writes the whole buffer, which starts at the given position in the file
+         */
+        private void write(ByteBuffer buffer, long startPosition) {
+            output.write(buffer, startPosition + buffer.position(), buffer, new CompletionHandler<Integer, ByteBuffer>() {
+                @Override
+                public void completed(Integer bytesWritten, ByteBuffer buffer) {
+                    try {
+                        if (buffer.hasRemaining()) {
+                            write(buffer, startPosition);
+                        } else {
+                            synchronized (FileJob.this) {
+                                buffersInFlight--;
+                                pump();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                }
+
+                @Override
+                public void failed(Throwable e, ByteBuffer buffer) {
+                    fail(e);
+                }
+            });
+        }
+
+        /**
+         * Closes both files, deletes the partly written output file and completes the result exceptionally
+         */
+        private synchronized void fail(Throwable e) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                closeChannels();
+            } catch (IOException closeFailed) {
+                e.addSuppressed(closeFailed);
+            }
+            // Only delete the output file if it was opened, and so replaced, by this job
+            if (output != null) {
+                try {
+                    Files.deleteIfExists(outputFile);
+                } catch (IOException deleteFailed) {
+                    e.addSuppressed(deleteFailed);
+                }
+            }
+            result.completeExceptionally(e);
+        }
+
+        private void closeChannels() throws IOException {
+            try {
+                if (input != null) {
+                    input.close();
+                }
+            } finally {
+                if (output != null) {
+                    output.close();
+                }
+            }
+        }
+    }
+}
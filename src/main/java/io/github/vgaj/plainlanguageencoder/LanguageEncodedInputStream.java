@@ -25,10 +25,6 @@ package io.github.vgaj.plainlanguageencoder;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Arrays;
-import java.util.Base64;
-import java.util.Map;
-import java.util.Optional;
 
 /**
  * This class is used to decode data from an InputStream encoded by {@link LanguageEncodedOutputStream}
@@ -43,9 +39,26 @@ import java.util.Optional;
  *         }
  *     }
  * </pre>
+ * Words are read into a fixed size buffer by {@link WordTokenizer}, so a long run of letters in
+ * corrupt or hostile input is skipped over rather than held in memory.
  */
 public class LanguageEncodedInputStream extends InputStream {
 
+    /**
+     * What to do when the input contains a word that is not used in the encoding,
+     * including any word that is too long to be one.
+     */
+    public enum InvalidWordPolicy {
+        /**
+         * Skip the word and carry on decoding
+         */
+        IGNORE,
+        /**
+         * Fail the read with an IOException
+         */
+        REJECT
+    }
+
     /**
      * The underlying InputStream that encoded data is being read from
      */
@@ -62,19 +75,30 @@ public class LanguageEncodedInputStream extends InputStream {
     private int nextBufferReadIndex = 0;
 
     /**
-     * Lookup that is used for decoding
+     * Splits the encoded data into words and looks them up
      */
-    private final Map<String, Byte> decodeMap;
+    private final WordTokenizer tokenizer;
 
     /**
      * Constructs a new LanguageEncodedInputStream which adds functionality to a {@link InputStream}.
      * The encoding is similar to Base64 but uses common, short english words.
+     * Any words that are not used in the encoding are ignored.
      * For example usage see {@link LanguageEncodedInputStream}
      * @param inputStream the InputStream that it is adding functionality to
      */
     public LanguageEncodedInputStream(InputStream inputStream) {
+        this(inputStream, InvalidWordPolicy.IGNORE);
+    }
+
+    /**
+     * Constructs a new LanguageEncodedInputStream which adds functionality to a {@link InputStream}.
+     * For example usage see {@link LanguageEncodedInputStream}
+     * @param inputStream the InputStream that it is adding functionality to
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     */
+    public LanguageEncodedInputStream(InputStream inputStream, InvalidWordPolicy invalidWordPolicy) {
         is = inputStream;
-        decodeMap = new EncodeData().getDecodeMap();
+        tokenizer = new WordTokenizer(new EncodeData(), invalidWordPolicy);
     }
 
     /**
@@ -107,47 +131,34 @@ public class LanguageEncodedInputStream extends InputStream {
         byte[] base64EncodedBytes = new byte[4];
         int encodedBytesIndex = 0;
         while (encodedBytesIndex < base64EncodedBytes.length) {
-            Optional<String> nextWord = getNextWord();
-            if (!nextWord.isPresent()) {
+            int base64Byte = getNextWord();
+            if (base64Byte == -1) {
                 // End of stream so decode what we have
                 break;
             }
-            Byte base64Byte = decodeMap.get(nextWord.get());
-            // This should never occur.  However, if it does let's just ignore it.
-            // This means that random words can be added to the encoded content which just get ignored.
-            if (base64Byte != null) {
-                base64EncodedBytes[encodedBytesIndex++] = base64Byte;
-            }
+            base64EncodedBytes[encodedBytesIndex++] = (byte) base64Byte;
         }
-        decodedBytes =  Base64.getDecoder().decode(Arrays.copyOf(base64EncodedBytes,encodedBytesIndex));
+        decodedBytes = tokenizer.decodeGroup(base64EncodedBytes, encodedBytesIndex);
         nextBufferReadIndex = 0;
     }
 
     /**
-     * Helper to read the next full word from the underlying InputStream
+     * Helper to read up to the end of the next word used in the encoding.
+     * Any other words are ignored, or rejected, by the tokenizer.
+     * @return the Base64 character for the word, or -1 at the end of the stream
      */
-    private Optional<String> getNextWord() throws IOException {
-        StringBuilder wordBuilder = new StringBuilder();
+    private int getNextWord() throws IOException {
         while (true) {
             int nextChar = is.read();
-            if (nextChar == -1) {
-                return (wordBuilder.length() > 0) ? Optional.of(wordBuilder.toString().toLowerCase()) : Optional.empty();
-            } else if (isALetter(nextChar)) {
-                wordBuilder.append((char) nextChar);
-            } else if (wordBuilder.length() > 0) {
-                // Keep reading until it's not a character and something has been read
-                return Optional.of(wordBuilder.toString().toLowerCase());
+            int base64Byte = tokenizer.next(nextChar);
+            if (base64Byte != WordTokenizer.NO_WORD) {
+                return base64Byte;
+            } else if (nextChar == -1) {
+                return -1;
             }
         }
     }
 
-    /**
-     * Helper that tells if a character was read from the InputStream
-     */
-    private boolean isALetter(int value) {
-        return ((value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z'));
-    }
-
     /**
      * See {@link InputStream#close()}
      * @throws IOException
@@ -23,9 +23,14 @@
  */
 package io.github.vgaj.plainlanguageencoder;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Map;
@@ -86,14 +91,119 @@ public class LanguageEncodedOutputStream extends OutputStream {
      */
     private boolean startingNewSentence = true;
 
+    /**
+     * Whether paragraphs are suppressed so that each record stays on a single line.
+     * See {@link LanguageEncodedRecordWriter}
+     */
+    private final boolean recordMode;
+
     /**
      * Constructs a new LanguageEncodedOutputStream which adds functionality to a {@link OutputStream}.
      * For example usage see {@link LanguageEncodedOutputStream}
      * @param outputStream the OutputStream that it is adding functionality to
      */
     public LanguageEncodedOutputStream(OutputStream outputStream) {
+        this(outputStream, false);
+    }
+
+    /**
+     * Constructs a new LanguageEncodedOutputStream which optionally never starts a new paragraph.
+     * @param outputStream the OutputStream that it is adding functionality to
+     * @param recordMode whether paragraphs are suppressed, as used by {@link LanguageEncodedRecordWriter}
+     */
+    LanguageEncodedOutputStream(OutputStream outputStream, boolean recordMode) {
         os = outputStream;
         encodeMap = new EncodeData().getEncodeMap();
+        this.recordMode = recordMode;
+    }
+
+    /**
+     * Opens an existing encoded file so that more data can be encoded on to the end of it.
+     * Only the tail of the file is read to find where the last sentence and paragraph are up to.
+     * The result is the same as if all the data had been encoded in one go, as long as the returned stream
+     * is only closed and not flushed.  Flushing completes the current group of words, padding it as
+     * {@link #flush} always does, and the file is cut short after what has been written so far.
+     * The padded group still decodes correctly, but the encoding differs from encoding in one go.
+     * The file is created if it does not exist.
+     * Example usage:
+     * <pre>
+     *     try (OutputStream os = LanguageEncodedOutputStream.append(Paths.get(encFilename))) {
+     *         os.write(moreData);
+     *     }
+     * </pre>
+     * @param encodedFile the file previously written by a LanguageEncodedOutputStream
+     * @return LanguageEncodedOutputStream that continues on from the end of the file
+     * @throws IOException if the file can't be opened or does not end in the format written by LanguageEncodedOutputStream
+     */
+    public static LanguageEncodedOutputStream append(Path encodedFile) throws IOException {
+        FileChannel channel = FileChannel.open(encodedFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            EncodedTail tail = EncodedTail.read(channel, new EncodeData());
+            // The end of the file is written over rather than removed now, so that it is kept until the
+            // bytes of the last group have been encoded again and written
+            channel.position(tail.getKeepLength());
+            LanguageEncodedOutputStream os = new LanguageEncodedOutputStream(new BufferedOutputStream(new OverwritingOutputStream(channel)));
+            os.resume(tail);
+            return os;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes to a file from its channel's position, which may be part way through the file.
+     * Anything after what has been written is only removed on flush or close, by which time
+     * {@link LanguageEncodedOutputStream} has written out all the data it was given.
+     * Until then the original end of the file is either untouched or, as it is no longer than a group of
+     * words and buffered writes are much larger, completely written over.
+     */
+    private static class OverwritingOutputStream extends OutputStream {
+        private final FileChannel channel;
+        private final OutputStream os;
+
+        OverwritingOutputStream(FileChannel channel) {
+            this.channel = channel;
+            os = Channels.newOutputStream(channel);
+        }
+
+        @Override
+        public void write(int byteToWrite) throws IOException {
+            os.write(byteToWrite);
+        }
+
+        @Override
+        public void write(byte[] bytesToWrite, int offset, int length) throws IOException {
+            os.write(bytesToWrite, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            os.flush();
+            channel.truncate(channel.position());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Restores the state from the end of an existing encoded file
+     */
+    private void resume(EncodedTail tail) {
+        wordNumber = tail.getWordsInParagraph();
+        sentenceNumber = wordNumber / 10;
+        spaceBeforeNextWord = wordNumber > 0;
+        startingNewSentence = (wordNumber % 10) == 0;
+        byte[] pendingBytes = tail.getPendingBytes();
+        System.arraycopy(pendingBytes, 0, bufferToWrite, 0, pendingBytes.length);
+        bufferPosition = pendingBytes.length;
     }
 
     /**
@@ -141,7 +251,7 @@ public class LanguageEncodedOutputStream extends OutputStream {
                     sentenceNumber++;
                     startingNewSentence = true;
                 }
-                if (isEndOfSentence && (sentenceNumber % 10 == 0)) {
+                if (isEndOfSentence && (sentenceNumber % 10 == 0) && !recordMode) {
                     // New paragraph
                     os.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
                     os.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
@@ -154,6 +264,22 @@ public class LanguageEncodedOutputStream extends OutputStream {
         bufferPosition = 0;
     }
 
+    /**
+     * Ends the current record.  Any buffered bytes are encoded, the sentence is completed and
+     * a newline is written.  The sentence state is then reset so the next record starts afresh.
+     */
+    void endRecord() throws IOException {
+        flushBuffer();
+        if ((wordNumber % 10) != 0) {
+            os.write(".".getBytes(StandardCharsets.UTF_8));
+        }
+        os.write('\n');
+        wordNumber = 0;
+        sentenceNumber = 0;
+        spaceBeforeNextWord = false;
+        startingNewSentence = true;
+    }
+
     /**
      * See {@link OutputStream#flush}
      * @throws IOException
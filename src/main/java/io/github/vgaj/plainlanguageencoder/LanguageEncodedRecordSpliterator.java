@@ -0,0 +1,398 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.vgaj.plainlanguageencoder;
+
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class is used to decode records written by {@link LanguageEncodedRecordWriter}.
+ * Each line is decoded into one record.  The encoded data can be split on newlines so the
+ * records can be decoded by a parallel stream.
+ * A single ByteBuffer can hold at most 2 GB, so larger files should be read with
+ * {@link #stream(FileChannel, boolean)}, which maps the file in regions that end on a newline.
+ * Example usage:
+ * <pre>
+ *     try (FileChannel channel = FileChannel.open(Paths.get(encFilename))) {
+ *         long count = LanguageEncodedRecordSpliterator.stream(channel, true).filter(...).count();
+ *     }
+ * </pre>
+ */
+public class LanguageEncodedRecordSpliterator implements Spliterator<byte[]> {
+
+    /**
+     * Ranges smaller than this are not split any further
+     */
+    private static final int MINIMUM_SPLIT_SIZE = 8192;
+
+    /**
+     * The most of a file that is mapped into one ByteBuffer
+     */
+    private static final long MAX_REGION_SIZE = Integer.MAX_VALUE;
+
+    /**
+     * The encoded data that records are read from
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The position in buffer of the start of the next record
+     */
+    private int position;
+
+    /**
+     * The position in buffer after the last record covered by this spliterator
+     */
+    private final int end;
+
+    /**
+     * The words used in the encoding, shared by split spliterators
+     */
+    private final EncodeData encodeData;
+
+    /**
+     * What to do with words that are not used in the encoding, shared by split spliterators
+     */
+    private final InvalidWordPolicy invalidWordPolicy;
+
+    /**
+     * Splits lines into words and looks them up
+     */
+    private final WordTokenizer tokenizer;
+
+    /**
+     * Constructs a new LanguageEncodedRecordSpliterator over the remaining bytes of a {@link ByteBuffer}
+     * which ignores words that are not used in the encoding.
+     * The buffer's position and limit are not changed.
+     * For example usage see {@link LanguageEncodedRecordSpliterator}
+     * @param encoded the encoded records
+     */
+    public LanguageEncodedRecordSpliterator(ByteBuffer encoded) {
+        this(encoded, InvalidWordPolicy.IGNORE);
+    }
+
+    /**
+     * Constructs a new LanguageEncodedRecordSpliterator over the remaining bytes of a {@link ByteBuffer}.
+     * The buffer's position and limit are not changed.
+     * With {@link InvalidWordPolicy#REJECT} an invalid record throws an {@link UncheckedIOException}
+     * when it is reached.
+     * For example usage see {@link LanguageEncodedRecordSpliterator}
+     * @param encoded the encoded records
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     */
+    public LanguageEncodedRecordSpliterator(ByteBuffer encoded, InvalidWordPolicy invalidWordPolicy) {
+        this(encoded.duplicate(), encoded.position(), encoded.limit(), new EncodeData(), invalidWordPolicy);
+    }
+
+    private LanguageEncodedRecordSpliterator(ByteBuffer buffer, int position, int end, EncodeData encodeData,
+                                             InvalidWordPolicy invalidWordPolicy) {
+        this.buffer = buffer;
+        this.position = position;
+        this.end = end;
+        this.encodeData = encodeData;
+        this.invalidWordPolicy = invalidWordPolicy;
+        tokenizer = new WordTokenizer(encodeData, invalidWordPolicy);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a {@link ByteBuffer}, ignoring words that are not used in the encoding
+     * @param encoded the encoded records
+     * @param parallel whether the stream is parallel
+     * @return stream of decoded records
+     */
+    public static Stream<byte[]> stream(ByteBuffer encoded, boolean parallel) {
+        return stream(encoded, parallel, InvalidWordPolicy.IGNORE);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a {@link ByteBuffer}
+     * @param encoded the encoded records
+     * @param parallel whether the stream is parallel
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     * @return stream of decoded records
+     */
+    public static Stream<byte[]> stream(ByteBuffer encoded, boolean parallel, InvalidWordPolicy invalidWordPolicy) {
+        return StreamSupport.stream(new LanguageEncodedRecordSpliterator(encoded, invalidWordPolicy), parallel);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a file of any size, ignoring words that are not used in the encoding.
+     * The file is mapped into memory in regions of at most 2 GB, each ending on a newline.
+     * The stream can be used after the channel has been closed.
+     * @param channel the file of encoded records
+     * @param parallel whether the stream is parallel
+     * @return stream of decoded records
+     * @throws IOException if the file can't be mapped or a record is longer than 2 GB
+     */
+    public static Stream<byte[]> stream(FileChannel channel, boolean parallel) throws IOException {
+        return stream(channel, parallel, InvalidWordPolicy.IGNORE);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a file of any size.
+     * See {@link #stream(FileChannel, boolean)}
+     * @param channel the file of encoded records
+     * @param parallel whether the stream is parallel
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     * @return stream of decoded records
+     * @throws IOException if the file can't be mapped or a record is longer than 2 GB
+     */
+    public static Stream<byte[]> stream(FileChannel channel, boolean parallel, InvalidWordPolicy invalidWordPolicy)
+            throws IOException {
+        return stream(channel, parallel, invalidWordPolicy, MAX_REGION_SIZE);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a file of any size, mapping it in regions of at most the given size.
+     * Smaller regions use less address space but every record must fit in one.
+     * See {@link #stream(FileChannel, boolean)}
+     * @param channel the file of encoded records
+     * @param parallel whether the stream is parallel
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     * @param maxRegionSize the most of the file that is mapped into one ByteBuffer, from 1 byte to 2 GB
+     * @return stream of decoded records
+     * @throws IOException if the file can't be mapped or a record is longer than maxRegionSize
+     */
+    public static Stream<byte[]> stream(FileChannel channel, boolean parallel, InvalidWordPolicy invalidWordPolicy,
+                                        long maxRegionSize) throws IOException {
+        if (maxRegionSize < 1 || maxRegionSize > MAX_REGION_SIZE) {
+            throw new IllegalArgumentException("Region size must be from 1 to " + MAX_REGION_SIZE + " bytes");
+        }
+        List<ByteBuffer> regions = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+            long length = Math.min(maxRegionSize, size - start);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            if (start + length < size) {
+                // End the region after the last newline so that no record is split between regions
+                int end = (int) length;
+                while (end > 0 && region.get(end - 1) != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    throw new IOException("Record starting at " + start + " is longer than " + maxRegionSize + " bytes");
+                }
+                region.limit(end);
+                length = end;
+            }
+            regions.add(region);
+            start += length;
+        }
+        return StreamSupport.stream(new RegionSpliterator(regions, 0, regions.size(), null, invalidWordPolicy), parallel);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a byte array, ignoring words that are not used in the encoding
+     * @param encoded the encoded records
+     * @param parallel whether the stream is parallel
+     * @return stream of decoded records
+     */
+    public static Stream<byte[]> stream(byte[] encoded, boolean parallel) {
+        return stream(ByteBuffer.wrap(encoded), parallel);
+    }
+
+    /**
+     * Creates a stream of the records decoded from a byte array
+     * @param encoded the encoded records
+     * @param parallel whether the stream is parallel
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     * @return stream of decoded records
+     */
+    public static Stream<byte[]> stream(byte[] encoded, boolean parallel, InvalidWordPolicy invalidWordPolicy) {
+        return stream(ByteBuffer.wrap(encoded), parallel, invalidWordPolicy);
+    }
+
+    /**
+     * Decodes the next line and passes the record to the action.
+     * Also see {@link Spliterator#tryAdvance}
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super byte[]> action) {
+        if (position >= end) {
+            return false;
+        }
+        int lineEnd = findNewline(position);
+        byte[] record = decodeLine(position, lineEnd);
+        position = lineEnd + 1;
+        action.accept(record);
+        return true;
+    }
+
+    /**
+     * Splits off the first half of the remaining records, breaking at the newline after the midpoint.
+     * Also see {@link Spliterator#trySplit}
+     */
+    @Override
+    public Spliterator<byte[]> trySplit() {
+        if (end - position < MINIMUM_SPLIT_SIZE) {
+            return null;
+        }
+        int splitEnd = findNewline(position + (end - position) / 2);
+        if (splitEnd >= end - 1) {
+            return null;
+        }
+        Spliterator<byte[]> prefix = new LanguageEncodedRecordSpliterator(buffer, position, splitEnd + 1,
+                encodeData, invalidWordPolicy);
+        position = splitEnd + 1;
+        return prefix;
+    }
+
+    /**
+     * The number of bytes remaining, which is an upper bound on the number of records
+     */
+    @Override
+    public long estimateSize() {
+        return end - position;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL | IMMUTABLE;
+    }
+
+    /**
+     * Helper to find the next newline at or after from, or end if there is none
+     */
+    private int findNewline(int from) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Decodes the words between start and lineEnd into a record.
+     * As with {@link LanguageEncodedInputStream} each group of 4 words is decoded as it is completed,
+     * and words that are not used in the encoding are handled according to the InvalidWordPolicy.
+     */
+    private byte[] decodeLine(int start, int lineEnd) {
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        byte[] base64EncodedBytes = new byte[4];
+        int encodedBytesIndex = 0;
+        try {
+            for (int i = start; i <= lineEnd; i++) {
+                int base64Byte = tokenizer.next((i < lineEnd) ? buffer.get(i) : -1);
+                if (base64Byte != WordTokenizer.NO_WORD) {
+                    base64EncodedBytes[encodedBytesIndex++] = (byte) base64Byte;
+                    if (encodedBytesIndex == base64EncodedBytes.length) {
+                        record.write(tokenizer.decodeGroup(base64EncodedBytes, encodedBytesIndex));
+                        encodedBytesIndex = 0;
+                    }
+                }
+            }
+            // End of the line so decode what we have
+            if (encodedBytesIndex > 0) {
+                record.write(tokenizer.decodeGroup(base64EncodedBytes, encodedBytesIndex));
+            }
+        } catch (IOException e) {
+            // Only thrown when words are rejected
+            throw new UncheckedIOException(e);
+        }
+        return record.toByteArray();
+    }
+
+    /**
+     * Splits a list of regions of a file between threads, and then the records within a region
+     */
+    private static class RegionSpliterator implements Spliterator<byte[]> {
+        private final List<ByteBuffer> regions;
+        private int nextRegion;
+        private final int endRegion;
+
+        /**
+         * The region before nextRegion that is being read, if any
+         */
+        private Spliterator<byte[]> current;
+
+        private final InvalidWordPolicy invalidWordPolicy;
+
+        RegionSpliterator(List<ByteBuffer> regions, int nextRegion, int endRegion, Spliterator<byte[]> current,
+                          InvalidWordPolicy invalidWordPolicy) {
+            this.regions = regions;
+            this.nextRegion = nextRegion;
+            this.endRegion = endRegion;
+            this.current = current;
+            this.invalidWordPolicy = invalidWordPolicy;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super byte[]> action) {
+            while (current == null || !current.tryAdvance(action)) {
+                if (nextRegion >= endRegion) {
+                    return false;
+                }
+                current = new LanguageEncodedRecordSpliterator(regions.get(nextRegion++), invalidWordPolicy);
+            }
+            return true;
+        }
+
+        @Override
+        public Spliterator<byte[]> trySplit() {
+            if (endRegion - nextRegion >= 2) {
+                int splitRegion = (nextRegion + endRegion) >>> 1;
+                Spliterator<byte[]> prefix = new RegionSpliterator(regions, nextRegion, splitRegion, current, invalidWordPolicy);
+                nextRegion = splitRegion;
+                current = null;
+                return prefix;
+            } else if (current != null && nextRegion < endRegion) {
+                // The region being read comes before the last region
+                Spliterator<byte[]> prefix = current;
+                current = null;
+                return prefix;
+            } else if (current == null && nextRegion < endRegion) {
+                current = new LanguageEncodedRecordSpliterator(regions.get(nextRegion++), invalidWordPolicy);
+            }
+            return (current != null) ? current.trySplit() : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = (current != null) ? current.estimateSize() : 0;
+            for (int i = nextRegion; i < endRegion; i++) {
+                size += regions.get(i).remaining();
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.vgaj.plainlanguageencoder;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * This class is used to encode records, writing each one as a single line to an OutputStream.
+ * Unlike {@link LanguageEncodedOutputStream} no paragraphs are added, so the encoded output can be
+ * split on newlines and each line decoded independently, for example by {@link LanguageEncodedRecordSpliterator}.
+ * Example usage:
+ * <pre>
+ *     try (LanguageEncodedRecordWriter writer = new LanguageEncodedRecordWriter( new BufferedOutputStream(new FileOutputStream(encFilename)))) {
+ *         writer.writeRecords(records.stream());
+ *     }
+ * </pre>
+ */
+public class LanguageEncodedRecordWriter implements Closeable, Flushable {
+
+    /**
+     * The encoder that records are written through, with paragraphs suppressed
+     */
+    private final LanguageEncodedOutputStream os;
+
+    /**
+     * Constructs a new LanguageEncodedRecordWriter which writes encoded records to a {@link OutputStream}.
+     * For example usage see {@link LanguageEncodedRecordWriter}
+     * @param outputStream the OutputStream that encoded records are written to
+     */
+    public LanguageEncodedRecordWriter(OutputStream outputStream) {
+        os = new LanguageEncodedOutputStream(outputStream, true);
+    }
+
+    /**
+     * Encodes a record and writes it as a single line
+     * @param record the record to write
+     * @throws IOException
+     */
+    public void writeRecord(byte[] record) throws IOException {
+        os.write(record);
+        os.endRecord();
+    }
+
+    /**
+     * Encodes each of the records and writes them one per line
+     * @param records the records to write
+     * @throws IOException
+     */
+    public void writeRecords(Iterator<byte[]> records) throws IOException {
+        while (records.hasNext()) {
+            writeRecord(records.next());
+        }
+    }
+
+    /**
+     * Encodes each of the records and writes them one per line, in encounter order
+     * @param records the records to write
+     * @throws IOException
+     */
+    public void writeRecords(Stream<byte[]> records) throws IOException {
+        try {
+            records.forEachOrdered(record -> {
+                try {
+                    writeRecord(record);
+                } catch (IOException e) {
+                    throw new WriteFailedException(e);
+                }
+            });
+        } catch (WriteFailedException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Carries an IOException from writing a record out of the stream, so that it can be told apart
+     * from any UncheckedIOException thrown by the stream itself
+     */
+    private static class WriteFailedException extends UncheckedIOException {
+        private static final long serialVersionUID = 1L;
+
+        WriteFailedException(IOException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * See {@link OutputStream#flush}
+     * @throws IOException
+     */
+    @Override
+    public void flush() throws IOException {
+        os.flush();
+    }
+
+    /**
+     * See {@link OutputStream#close}
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        // Every record has been completed so there is no trailing full stop to add
+        os.close();
+    }
+}
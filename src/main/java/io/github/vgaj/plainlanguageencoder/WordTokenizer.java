@@ -0,0 +1,200 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package io.github.vgaj.plainlanguageencoder;
+
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * This class splits encoded text into words and looks each one up to find its Base64 character.
+ * Characters are passed in one at a time, so it can be used however the text is being read.
+ * As soon as the letters read so far can't be the start of a word used in the encoding the rest
+ * of the word is skipped over, so a long run of letters in corrupt or hostile input is never held in memory.
+ * Words are looked up by a code made from their letters, in base 27 so that "a" and "aa" differ,
+ * rather than by creating a String.
+ */
+class WordTokenizer {
+
+    /**
+     * Returned by {@link #next} when the character does not end a word used in the encoding
+     */
+    static final int NO_WORD = -1;
+
+    /**
+     * Whether each code is the start of, or the whole of, a word used in the encoding
+     */
+    private final boolean[] isPrefix;
+
+    /**
+     * The Base64 character for the word with each code, or 0 if it is not a word used in the encoding
+     */
+    private final byte[] base64ByteForCode;
+
+    /**
+     * What to do with words that are not used in the encoding
+     */
+    private final InvalidWordPolicy invalidWordPolicy;
+
+    /**
+     * Buffer for the word currently being read, sized to the longest word used in the encoding
+     */
+    private final char[] wordBuffer;
+
+    /**
+     * Number of letters in wordBuffer
+     */
+    private int wordLength = 0;
+
+    /**
+     * Code made from the letters in wordBuffer
+     */
+    private int wordCode = 0;
+
+    /**
+     * Whether the current word is being skipped as it can't be used in the encoding
+     */
+    private boolean skippingWord = false;
+
+    /**
+     * Number of letters in the word most recently returned by {@link #next}
+     */
+    private int lastWordLength = 0;
+
+    /**
+     * @param encodeData the words used in the encoding
+     * @param invalidWordPolicy what to do with words that are not used in the encoding
+     */
+    WordTokenizer(EncodeData encodeData, InvalidWordPolicy invalidWordPolicy) {
+        wordBuffer = new char[encodeData.getMaxWordLength()];
+        this.invalidWordPolicy = invalidWordPolicy;
+
+        int codeCount = 1;
+        for (int i = 0; i < wordBuffer.length; i++) {
+            codeCount *= 27;
+        }
+        isPrefix = new boolean[codeCount];
+        base64ByteForCode = new byte[codeCount];
+        for (Map.Entry<String, Byte> entry : encodeData.getDecodeMap().entrySet()) {
+            int code = 0;
+            for (char letter : entry.getKey().toCharArray()) {
+                code = addToCode(code, letter);
+                isPrefix[code] = true;
+            }
+            base64ByteForCode[code] = entry.getValue();
+        }
+    }
+
+    /**
+     * Takes the next character of the encoded text
+     * @param nextChar the next character, or -1 at the end of the text
+     * @return the Base64 character if nextChar ends a word used in the encoding, otherwise {@link #NO_WORD}
+     * @throws IOException if the policy is REJECT and the word is not used in the encoding
+     */
+    int next(int nextChar) throws IOException {
+        if (isALetter(nextChar)) {
+            if (skippingWord) {
+                return NO_WORD;
+            } else if (wordLength == wordBuffer.length) {
+                if (invalidWordPolicy == InvalidWordPolicy.REJECT) {
+                    throw new IOException("Word is longer than " + wordBuffer.length + " letters");
+                }
+                skippingWord = true;
+                return NO_WORD;
+            }
+            // Letters are ASCII so setting this bit gives the lower case letter
+            char letter = (char) (nextChar | 0x20);
+            wordBuffer[wordLength++] = letter;
+            wordCode = addToCode(wordCode, letter);
+            if (!isPrefix[wordCode]) {
+                if (invalidWordPolicy == InvalidWordPolicy.REJECT) {
+                    throw new IOException("Unable to find decode mapping for a word starting " + new String(wordBuffer, 0, wordLength));
+                }
+                skippingWord = true;
+            }
+            return NO_WORD;
+        } else if (skippingWord) {
+            // Can't be decoded so carry on to the next word
+            skippingWord = false;
+            wordLength = 0;
+            wordCode = 0;
+            return NO_WORD;
+        } else if (wordLength > 0) {
+            byte base64Byte = base64ByteForCode[wordCode];
+            lastWordLength = wordLength;
+            wordLength = 0;
+            wordCode = 0;
+            // This means that random words can be added to the encoded content which just get ignored.
+            if (base64Byte != 0) {
+                return base64Byte;
+            } else if (invalidWordPolicy == InvalidWordPolicy.REJECT) {
+                throw new IOException("Unable to find decode mapping for " + new String(wordBuffer, 0, lastWordLength));
+            }
+        }
+        return NO_WORD;
+    }
+
+    /**
+     * Base64 decodes a group of up to 4 characters
+     * @param base64EncodedBytes the characters
+     * @param length the number of characters in the group
+     * @return the decoded bytes
+     * @throws IOException if the policy is REJECT and the words are not a complete group
+     */
+    byte[] decodeGroup(byte[] base64EncodedBytes, int length) throws IOException {
+        try {
+            return Base64.getDecoder().decode(Arrays.copyOf(base64EncodedBytes, length));
+        } catch (IllegalArgumentException e) {
+            if (invalidWordPolicy == InvalidWordPolicy.REJECT) {
+                throw new IOException("Encoded data is not a complete group of words", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Helper that adds a lower case letter to the code for a word
+     */
+    private static int addToCode(int code, char letter) {
+        return code * 27 + (letter - 'a' + 1);
+    }
+
+    /**
+     * Number of letters in the word most recently returned by {@link #next}.
+     * The word ends just before the character that was passed to next.
+     */
+    int getLastWordLength() {
+        return lastWordLength;
+    }
+
+    /**
+     * Helper that tells if a character is a letter
+     */
+    static boolean isALetter(int value) {
+        return ((value >= 'a' && value <= 'z') || (value >= 'A' && value <= 'Z'));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedOutputStream;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Tests decoding of input that contains words that are not used in the encoding
+ */
+public class TestDecodeInvalidWords
+{
+    private static final byte[] BROWN_FOX = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8);
+
+    private final String encodedBrownFox;
+
+    public TestDecodeInvalidWords() throws IOException {
+        ByteArrayOutputStream encodedOutputStream = new ByteArrayOutputStream();
+        try (OutputStream os = new LanguageEncodedOutputStream(encodedOutputStream)) {
+            os.write(BROWN_FOX);
+        }
+        encodedBrownFox = new String(encodedOutputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void ignoreUnknownWords() throws IOException {
+        String encoded = "Hello " + encodedBrownFox.replace(" oh.", " oh. Cat elephant");
+        assert Arrays.equals(BROWN_FOX, decode(encoded, InvalidWordPolicy.IGNORE));
+    }
+
+    @Test
+    public void ignoreLongRunOfLetters() throws IOException {
+        char[] letters = new char[1000000];
+        Arrays.fill(letters, 'x');
+        String encoded = new String(letters) + " " + encodedBrownFox + " " + new String(letters);
+        assert Arrays.equals(BROWN_FOX, decode(encoded, InvalidWordPolicy.IGNORE));
+    }
+
+    @Test
+    public void decodeMixedCase() throws IOException {
+        assert Arrays.equals(BROWN_FOX, decode(encodedBrownFox.toUpperCase(), InvalidWordPolicy.REJECT));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectUnknownWord() throws IOException {
+        decode(encodedBrownFox.replace(" oh.", " cat."), InvalidWordPolicy.REJECT);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectLongRunOfLetters() throws IOException {
+        // Never ends so the word must be rejected without reading it all
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                return 'x';
+            }
+        };
+        try (InputStream is = new LanguageEncodedInputStream(endless, InvalidWordPolicy.REJECT)) {
+            is.read();
+        }
+    }
+
+    @Test
+    public void rejectAsSoonAsNotAWord() throws IOException {
+        // No word starts with a z so only one letter should be read
+        int[] lettersRead = {0};
+        InputStream endless = new InputStream() {
+            @Override
+            public int read() {
+                lettersRead[0]++;
+                return 'z';
+            }
+        };
+        try (InputStream is = new LanguageEncodedInputStream(endless, InvalidWordPolicy.REJECT)) {
+            is.read();
+            assert false;
+        } catch (IOException e) {
+            assert lettersRead[0] == 1;
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectIncompleteGroup() throws IOException {
+        decode("A.", InvalidWordPolicy.REJECT);
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectMisplacedPadding() throws IOException {
+        // "lot" is the padding character so can't start a group
+        decode("Lot a a a.", InvalidWordPolicy.REJECT);
+    }
+
+    private byte[] decode(String encoded, InvalidWordPolicy invalidWordPolicy) throws IOException {
+        ByteArrayOutputStream decodedOutputStream = new ByteArrayOutputStream();
+        try (InputStream is = new LanguageEncodedInputStream( new BufferedInputStream(
+                new ByteArrayInputStream(encoded.getBytes(StandardCharsets.UTF_8))), invalidWordPolicy)) {
+            int inputData;
+            while ((inputData = is.read()) != -1) {
+                decodedOutputStream.write(inputData);
+            }
+        }
+        return decodedOutputStream.toByteArray();
+    }
+}
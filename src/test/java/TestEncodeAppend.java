@@ -0,0 +1,185 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedOutputStream;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Tests where data is encoded to a file in two parts, appending the second part,
+ * and compared to encoding all the data at once
+ */
+public class TestEncodeAppend
+{
+    @Test
+    public void appendToEmptyFile() throws IOException {
+        appendTest(0, 10);
+    }
+
+    @Test
+    public void appendNothing() throws IOException {
+        appendTest(10, 0);
+    }
+
+    @Test
+    public void appendAtEveryPosition() throws IOException {
+        // Covers partial groups, sentences and paragraphs
+        for (int firstLength = 0; firstLength < 160; firstLength++) {
+            appendTest(firstLength, 7);
+        }
+    }
+
+    @Test
+    public void appendToLargeFile() throws IOException {
+        // Longer than the tail that is read from the encoded file
+        for (int firstLength = 10000; firstLength < 10080; firstLength++) {
+            appendTest(firstLength, 100);
+        }
+    }
+
+    @Test
+    public void appendTwice() throws IOException {
+        byte[] data = makeData(50);
+        Path encodedFile = Files.createTempFile("append", ".txt");
+        try {
+            encode(Arrays.copyOfRange(data, 0, 10), new FileOutputStream(encodedFile.toFile()));
+            try (OutputStream os = LanguageEncodedOutputStream.append(encodedFile)) {
+                os.write(Arrays.copyOfRange(data, 10, 11));
+            }
+            try (OutputStream os = LanguageEncodedOutputStream.append(encodedFile)) {
+                os.write(Arrays.copyOfRange(data, 11, data.length));
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            encode(data, expected);
+            assert Arrays.equals(expected.toByteArray(), Files.readAllBytes(encodedFile));
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    @Test
+    public void appendWithoutClosing() throws IOException {
+        byte[] data = {1, 2, 3, 4, 5};
+        Path encodedFile = Files.createTempFile("append", ".txt");
+        try {
+            encode(Arrays.copyOfRange(data, 0, 4), new FileOutputStream(encodedFile.toFile()));
+            byte[] originalEncoding = Files.readAllBytes(encodedFile);
+            OutputStream os = LanguageEncodedOutputStream.append(encodedFile);
+            try {
+                // Nothing is lost if the stream is never closed
+                os.write(data[4]);
+                assert Arrays.equals(originalEncoding, Files.readAllBytes(encodedFile));
+                assert Arrays.equals(Arrays.copyOfRange(data, 0, 4), decode(encodedFile));
+
+                os.flush();
+                assert Arrays.equals(data, decode(encodedFile));
+            } finally {
+                os.close();
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            encode(data, expected);
+            assert Arrays.equals(expected.toByteArray(), Files.readAllBytes(encodedFile));
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    @Test
+    public void appendWithFlushInTheMiddle() throws IOException {
+        byte[] data = makeData(20);
+        Path encodedFile = Files.createTempFile("append", ".txt");
+        try {
+            encode(Arrays.copyOfRange(data, 0, 10), new FileOutputStream(encodedFile.toFile()));
+            try (OutputStream os = LanguageEncodedOutputStream.append(encodedFile)) {
+                os.write(Arrays.copyOfRange(data, 10, 14));
+                // Pads the partial group so the encoding is no longer the same as encoding in one go
+                os.flush();
+                os.write(Arrays.copyOfRange(data, 14, data.length));
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            encode(data, expected);
+            assert !Arrays.equals(expected.toByteArray(), Files.readAllBytes(encodedFile));
+            assert Arrays.equals(data, decode(encodedFile));
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void appendToFileThatIsNotEncoded() throws IOException {
+        Path encodedFile = Files.createTempFile("append", ".txt");
+        try {
+            Files.write(encodedFile, "hello world this is not encoded".getBytes(StandardCharsets.UTF_8));
+            LanguageEncodedOutputStream.append(encodedFile).close();
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    private void appendTest(int firstLength, int secondLength) throws IOException {
+        byte[] data = makeData(firstLength + secondLength);
+        Path encodedFile = Files.createTempFile("append", ".txt");
+        try {
+            encode(Arrays.copyOfRange(data, 0, firstLength), new FileOutputStream(encodedFile.toFile()));
+            try (OutputStream os = LanguageEncodedOutputStream.append(encodedFile)) {
+                os.write(Arrays.copyOfRange(data, firstLength, data.length));
+            }
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            encode(data, expected);
+            assert Arrays.equals(expected.toByteArray(), Files.readAllBytes(encodedFile));
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    private byte[] makeData(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+        return data;
+    }
+
+    private byte[] decode(Path encodedFile) throws IOException {
+        ByteArrayOutputStream decodedOutputStream = new ByteArrayOutputStream();
+        try (InputStream is = new LanguageEncodedInputStream( new BufferedInputStream( Files.newInputStream(encodedFile)))) {
+            int inputData;
+            while ((inputData = is.read()) != -1) {
+                decodedOutputStream.write(inputData);
+            }
+        }
+        return decodedOutputStream.toByteArray();
+    }
+
+    private void encode(byte[] data, OutputStream outputStream) throws IOException {
+        try (OutputStream os = new LanguageEncodedOutputStream( new BufferedOutputStream( outputStream))) {
+            os.write(data);
+        }
+    }
+}
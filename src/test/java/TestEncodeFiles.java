@@ -0,0 +1,232 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedFiles;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedOutputStream;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests where files are encoded and decoded asynchronously and compared
+ */
+public class TestEncodeFiles
+{
+    @Test
+    public void roundTripEmpty() throws IOException {
+        roundTripTest(new byte[0]);
+    }
+
+    @Test
+    public void roundTripSmall() throws IOException {
+        for (int length = 1; length < 10; length++) {
+            roundTripTest(makeData(length));
+        }
+    }
+
+    @Test
+    public void roundTripManyBuffers() throws IOException {
+        // Long enough that both the original and encoded files take many reads
+        roundTripTest(makeData(500000));
+    }
+
+    @Test
+    public void roundTripManyFilesAtOnce() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Path> files = new ArrayList<>();
+        try {
+            LanguageEncodedFiles encodedFiles = new LanguageEncodedFiles(executor);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            List<byte[]> data = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                data.add(makeData(10000 * i));
+                Path originalFile = createFile(files, data.get(i));
+                Path encodedFile = createFile(files, new byte[0]);
+                Path decodedFile = createFile(files, new byte[0]);
+                futures.add(encodedFiles.encodeFile(originalFile, encodedFile)
+                        .thenCompose(v -> encodedFiles.decodeFile(encodedFile, decodedFile)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            for (int i = 0; i < data.size(); i++) {
+                assert Arrays.equals(data.get(i), Files.readAllBytes(files.get(i * 3 + 2)));
+            }
+        } finally {
+            executor.shutdown();
+            deleteFiles(files);
+        }
+    }
+
+    @Test
+    public void roundTripOnOwnChannelThreads() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger channelThreads = new AtomicInteger();
+        ExecutorService channelExecutor = Executors.newFixedThreadPool(1, r -> {
+            channelThreads.incrementAndGet();
+            return new Thread(r);
+        });
+        List<Path> files = new ArrayList<>();
+        try {
+            byte[] data = makeData(200000);
+            Path originalFile = createFile(files, data);
+            Path encodedFile = createFile(files, new byte[0]);
+            Path decodedFile = createFile(files, new byte[0]);
+            LanguageEncodedFiles encodedFiles = new LanguageEncodedFiles(executor, channelExecutor, InvalidWordPolicy.IGNORE);
+            encodedFiles.encodeFile(originalFile, encodedFile)
+                    .thenCompose(v -> encodedFiles.decodeFile(encodedFile, decodedFile))
+                    .join();
+            assert Arrays.equals(data, Files.readAllBytes(decodedFile));
+            // Reads and writes were handled on the one thread that was given
+            assert channelThreads.get() == 1;
+        } finally {
+            executor.shutdown();
+            channelExecutor.shutdown();
+            deleteFiles(files);
+        }
+    }
+
+    @Test(expected = CompletionException.class)
+    public void encodeMissingFile() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Path> files = new ArrayList<>();
+        try {
+            Path encodedFile = createFile(files, new byte[0]);
+            Path missingFile = encodedFile.resolveSibling(encodedFile.getFileName() + ".missing");
+            new LanguageEncodedFiles(executor).encodeFile(missingFile, encodedFile).join();
+        } finally {
+            executor.shutdown();
+            deleteFiles(files);
+        }
+    }
+
+    @Test
+    public void decodeFailsMidway() throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Path> files = new ArrayList<>();
+        try {
+            Path originalFile = createFile(files, makeData(500000));
+            Path encodedFile = createFile(files, new byte[0]);
+            Path decodedFile = createFile(files, new byte[0]);
+            LanguageEncodedFiles encodedFiles = new LanguageEncodedFiles(executor, InvalidWordPolicy.REJECT);
+            encodedFiles.encodeFile(originalFile, encodedFile).join();
+            // A word that is not used in the encoding, after many buffers have been decoded and written
+            Files.write(encodedFile, " Zebra.".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+            decodeExpectingFailure(encodedFiles, encodedFile, decodedFile);
+            assert !Files.exists(decodedFile);
+            assertFilesClosed(encodedFile, decodedFile);
+        } finally {
+            executor.shutdown();
+            deleteFiles(files);
+        }
+    }
+
+    @Test
+    public void decodeRejectsIncompleteGroup() throws IOException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Path> files = new ArrayList<>();
+        try {
+            Path encodedFile = createFile(files, "A.".getBytes(StandardCharsets.UTF_8));
+            Path decodedFile = createFile(files, new byte[0]);
+            decodeExpectingFailure(new LanguageEncodedFiles(executor, InvalidWordPolicy.REJECT), encodedFile, decodedFile);
+            assert !Files.exists(decodedFile);
+            assertFilesClosed(encodedFile, decodedFile);
+        } finally {
+            executor.shutdown();
+            deleteFiles(files);
+        }
+    }
+
+    private void decodeExpectingFailure(LanguageEncodedFiles encodedFiles, Path encodedFile, Path decodedFile) {
+        try {
+            encodedFiles.decodeFile(encodedFile, decodedFile).join();
+            assert false;
+        } catch (CompletionException e) {
+            assert e.getCause() instanceof IOException;
+        }
+    }
+
+    /**
+     * On platforms that lock open files these fail unless both files have been closed
+     */
+    private void assertFilesClosed(Path encodedFile, Path decodedFile) throws IOException {
+        Files.delete(encodedFile);
+        Files.newOutputStream(decodedFile, StandardOpenOption.CREATE_NEW).close();
+    }
+
+    private void roundTripTest(byte[] dataToRoundTrip) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Path> files = new ArrayList<>();
+        try {
+            Path originalFile = createFile(files, dataToRoundTrip);
+            Path encodedFile = createFile(files, new byte[0]);
+            Path decodedFile = createFile(files, new byte[0]);
+            LanguageEncodedFiles encodedFiles = new LanguageEncodedFiles(executor);
+            encodedFiles.encodeFile(originalFile, encodedFile).join();
+            encodedFiles.decodeFile(encodedFile, decodedFile).join();
+
+            // The encoding must match the stream
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            try (OutputStream os = new LanguageEncodedOutputStream(expected)) {
+                os.write(dataToRoundTrip);
+            }
+            assert Arrays.equals(expected.toByteArray(), Files.readAllBytes(encodedFile));
+            assert Arrays.equals(dataToRoundTrip, Files.readAllBytes(decodedFile));
+        } finally {
+            executor.shutdown();
+            deleteFiles(files);
+        }
+    }
+
+    private byte[] makeData(int length) {
+        byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        return data;
+    }
+
+    private Path createFile(List<Path> files, byte[] data) throws IOException {
+        Path file = Files.createTempFile("files", ".txt");
+        files.add(file);
+        Files.write(file, data);
+        return file;
+    }
+
+    private void deleteFiles(List<Path> files) throws IOException {
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/*
+ * MIT License
+
+ * Copyright (c) 2022 Viru Gajanayake
+
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedInputStream.InvalidWordPolicy;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedRecordSpliterator;
+import io.github.vgaj.plainlanguageencoder.LanguageEncodedRecordWriter;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests where records are encoded one per line and decoded and compared
+ */
+public class TestEncodeRecords
+{
+    @Test
+    public void roundTripNoRecords() throws IOException {
+        roundTripTest(new ArrayList<>(), false);
+    }
+
+    @Test
+    public void roundTripEmptyRecords() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        records.add(new byte[0]);
+        records.add(new byte[]{-1});
+        records.add(new byte[0]);
+        roundTripTest(records, false);
+    }
+
+    @Test
+    public void roundTripOddSizedRecords() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int size = 0; size < 200; size++) {
+            records.add(makeRecord(size, size));
+        }
+        roundTripTest(records, false);
+    }
+
+    @Test
+    public void roundTripParallel() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            records.add(makeRecord(i, i % 50));
+        }
+        roundTripTest(records, true);
+    }
+
+    @Test
+    public void roundTripFile() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            records.add(makeRecord(i, i % 50));
+        }
+        Path encodedFile = Files.createTempFile("records", ".txt");
+        try {
+            Files.write(encodedFile, encode(records));
+            List<byte[]> roundTripRecords;
+            try (FileChannel channel = FileChannel.open(encodedFile)) {
+                roundTripRecords = LanguageEncodedRecordSpliterator.stream(channel, true).collect(Collectors.toList());
+            }
+            assert records.size() == roundTripRecords.size();
+            for (int i = 0; i < records.size(); i++) {
+                assert Arrays.equals(records.get(i), roundTripRecords.get(i));
+            }
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    @Test
+    public void roundTripFileInRegions() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            records.add(makeRecord(i, i % 50));
+        }
+        // Smaller and larger than the size below which a region is not split
+        for (long maxRegionSize : new long[]{1000, 4000, 9000}) {
+            roundTripFileTest(records, maxRegionSize, false);
+            roundTripFileTest(records, maxRegionSize, true);
+        }
+    }
+
+    @Test
+    public void roundTripFileWithRegionEndingOnNewline() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(makeRecord(i, 20));
+        }
+        byte[] encoded = encode(records);
+        // The first region is exactly the first three lines
+        int newlines = 0;
+        int maxRegionSize = 0;
+        while (newlines < 3) {
+            if (encoded[maxRegionSize++] == '\n') {
+                newlines++;
+            }
+        }
+        roundTripFileTest(records, maxRegionSize, false);
+    }
+
+    @Test
+    public void splitFileInRegions() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            records.add(makeRecord(i, i % 50));
+        }
+        Path encodedFile = Files.createTempFile("records", ".txt");
+        try {
+            Files.write(encodedFile, encode(records));
+            for (long maxRegionSize : new long[]{1000, 9000}) {
+                List<byte[]> roundTripRecords = new ArrayList<>();
+                try (FileChannel channel = FileChannel.open(encodedFile)) {
+                    // Splitting after every record splits the regions, hands off the region being read
+                    // and splits within the last region
+                    drainSplitting(LanguageEncodedRecordSpliterator
+                            .stream(channel, false, InvalidWordPolicy.IGNORE, maxRegionSize).spliterator(),
+                            roundTripRecords);
+                }
+                assertSameRecords(records, roundTripRecords);
+            }
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void recordLongerThanRegion() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        records.add(makeRecord(1, 10));
+        records.add(makeRecord(2, 100));
+        records.add(makeRecord(3, 10));
+        roundTripFileTest(records, 200, false);
+    }
+
+    @Test
+    public void oneLinePerRecord() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        // Long enough that the stream encoding would start a new paragraph
+        records.add(makeRecord(0, 500));
+        records.add("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8));
+        String encoded = new String(encode(records), StandardCharsets.UTF_8);
+        assert encoded.split("\n", -1).length == records.size() + 1;
+        assert encoded.endsWith(".\n");
+    }
+
+    @Test
+    public void ignoreInvalidWords() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        records.add(makeRecord(1, 20));
+        records.add(makeRecord(2, 20));
+        List<byte[]> roundTripRecords = LanguageEncodedRecordSpliterator
+                .stream(withInvalidWord(encode(records)), false, InvalidWordPolicy.IGNORE)
+                .collect(Collectors.toList());
+        assert records.size() == roundTripRecords.size();
+        for (int i = 0; i < records.size(); i++) {
+            assert Arrays.equals(records.get(i), roundTripRecords.get(i));
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void rejectInvalidWord() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        records.add(makeRecord(1, 20));
+        LanguageEncodedRecordSpliterator.stream(withInvalidWord(encode(records)), false, InvalidWordPolicy.REJECT)
+                .count();
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void rejectIncompleteGroup() {
+        byte[] encoded = "A.\n".getBytes(StandardCharsets.UTF_8);
+        LanguageEncodedRecordSpliterator.stream(encoded, false, InvalidWordPolicy.REJECT).count();
+    }
+
+    @Test
+    public void rejectAcceptsValidRecords() throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(makeRecord(i, i % 50));
+        }
+        List<byte[]> roundTripRecords = LanguageEncodedRecordSpliterator
+                .stream(encode(records), true, InvalidWordPolicy.REJECT)
+                .collect(Collectors.toList());
+        assert records.size() == roundTripRecords.size();
+        for (int i = 0; i < records.size(); i++) {
+            assert Arrays.equals(records.get(i), roundTripRecords.get(i));
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void streamExceptionIsNotUnwrapped() throws IOException {
+        // The stream's own exceptions are passed on as they are
+        Stream<byte[]> failingRecords = Stream.of(new byte[1], new byte[2]).peek(record -> {
+            throw new UncheckedIOException(new IOException("Source failed"));
+        });
+        try (LanguageEncodedRecordWriter writer = new LanguageEncodedRecordWriter(new ByteArrayOutputStream())) {
+            writer.writeRecords(failingRecords);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void writeExceptionIsUnwrapped() throws IOException {
+        OutputStream failingOutputStream = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Write failed");
+            }
+        };
+        try (LanguageEncodedRecordWriter writer = new LanguageEncodedRecordWriter(failingOutputStream)) {
+            writer.writeRecords(Stream.of(new byte[3]));
+        }
+    }
+
+    /**
+     * Decodes every record, splitting off and decoding the earlier records whenever possible
+     */
+    private void drainSplitting(Spliterator<byte[]> spliterator, List<byte[]> records) {
+        do {
+            Spliterator<byte[]> prefix = spliterator.trySplit();
+            if (prefix != null) {
+                drainSplitting(prefix, records);
+            }
+        } while (spliterator.tryAdvance(records::add));
+    }
+
+    private void roundTripFileTest(List<byte[]> records, long maxRegionSize, boolean parallel) throws IOException {
+        Path encodedFile = Files.createTempFile("records", ".txt");
+        try {
+            Files.write(encodedFile, encode(records));
+            List<byte[]> roundTripRecords;
+            try (FileChannel channel = FileChannel.open(encodedFile)) {
+                roundTripRecords = LanguageEncodedRecordSpliterator
+                        .stream(channel, parallel, InvalidWordPolicy.IGNORE, maxRegionSize)
+                        .collect(Collectors.toList());
+            }
+            assertSameRecords(records, roundTripRecords);
+        } finally {
+            Files.delete(encodedFile);
+        }
+    }
+
+    private void assertSameRecords(List<byte[]> records, List<byte[]> roundTripRecords) {
+        assert records.size() == roundTripRecords.size();
+        for (int i = 0; i < records.size(); i++) {
+            assert Arrays.equals(records.get(i), roundTripRecords.get(i));
+        }
+    }
+
+    private byte[] makeRecord(int seed, int size) {
+        byte[] record = new byte[size];
+        for (int i = 0; i < size; i++) {
+            record[i] = (byte) (seed * 31 + i);
+        }
+        return record;
+    }
+
+    /**
+     * Adds a word that is not used in the encoding to the end of the first record
+     */
+    private byte[] withInvalidWord(byte[] encoded) {
+        String text = new String(encoded, StandardCharsets.UTF_8);
+        return text.replaceFirst("\\.\n", " zebra.\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] encode(List<byte[]> records) throws IOException {
+        ByteArrayOutputStream encodedOutputSteam = new ByteArrayOutputStream();
+        try (LanguageEncodedRecordWriter writer = new LanguageEncodedRecordWriter(encodedOutputSteam)) {
+            writer.writeRecords(records.stream());
+        }
+        return encodedOutputSteam.toByteArray();
+    }
+
+    private void roundTripTest(List<byte[]> records, boolean parallel) throws IOException {
+        List<byte[]> roundTripRecords = LanguageEncodedRecordSpliterator.stream(encode(records), parallel)
+                .collect(Collectors.toList());
+        assert records.size() == roundTripRecords.size();
+        for (int i = 0; i < records.size(); i++) {
+            assert Arrays.equals(records.get(i), roundTripRecords.get(i));
+        }
+    }
+}